@@ -2,16 +2,24 @@ package ai.bridgee.android.sdk;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import ai.bridgee.android.sdk.internal.api.ConversionApiClient;
 import ai.bridgee.android.sdk.internal.api.MatchApiClient;
 import ai.bridgee.android.sdk.internal.api.InstallReferrerResolver;
+import ai.bridgee.android.sdk.internal.model.ConversionEvent;
 import ai.bridgee.android.sdk.internal.model.MatchRequest;
+import ai.bridgee.android.sdk.internal.queue.ConversionEventQueue;
+import ai.bridgee.android.sdk.internal.util.InstallReferrerParser;
 import ai.bridgee.android.sdk.internal.util.TenantTokenEncoder;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.UUID;
+
 /**
  * BridgeeSDK is a SDK that publish events into an given analytics provider (e.g. Firebase Analytics).
  * The main purpose is to inject UTM atribution parameters into the events, according to a proprietary
@@ -24,9 +32,12 @@ public class BridgeeSDK {
     private final AnalyticsProvider analyticsProvider;
     private final Context context;
     private final InstallReferrerResolver instalReferrerResolver;
+    private final ConversionEventQueue conversionEventQueue;
     private final String tenantId;
     private final String tenantKey;
     private Boolean dryRun = true;
+    private long installReferrerTimeoutMs = 0;
+    private boolean binaryWireFormat = false;
 
     private static BridgeeSDK instance;
 
@@ -58,6 +69,11 @@ public class BridgeeSDK {
     /**
      * Register some user attributes and events to firebase so we vinculate the installment to the right channel.
      * 
+     * When the install referrer already has the attribution (utm_source and utm_medium, or a gclid),
+     * the callback is called right away with a provisional response (see {@link MatchResponse#isProvisional()}),
+     * and then a second time with the final response, confirmed or corrected by the Bridgee API.
+     * The analytics events and user properties are only sent once, with the final attribution.
+     *
      * @param mb user data that you can send to help us match the user with the right attribution event.
      * the more data you provide, the more accurate the match will be.
      */
@@ -70,6 +86,13 @@ public class BridgeeSDK {
             public void ok(MatchResponse matchResponse) {
                 Log.d(TAG, "Attribution resolved: " + matchResponse);
 
+                if (matchResponse.isProvisional()) {
+                    // the analytics wait for the final attribution, so they are never sent with a wrong one
+                    if (callback != null)
+                        callback.ok(matchResponse);
+                    return;
+                }
+
                 // user properties
                 Log.d(TAG, "Setting user properties");
                 setUserProperty("install_source", matchResponse.getUtmSource());
@@ -100,6 +123,69 @@ public class BridgeeSDK {
         
     }
 
+    /**
+     * Enables the speculative match: firstOpen sends the match right away, in parallel with the
+     * install referrer, and sends the referrer later in a small follow-up request.
+     * The callback receives the speculative response as provisional as soon as the match answers, without
+     * waiting for the referrer. The final response needs one more round trip: the follow-up is only sent
+     * after both the match and the referrer are done.
+     * The timeout bounds the wait for the referrer: if it does not arrive in time (or the referrer is not
+     * available), the speculative response becomes final, so a slow or hung Play Store service never blocks
+     * the attribution. A referrer that arrives later is still sent, to complete the record on the server.
+     *
+     * @param timeoutMillis the maximum wait for the referrer in milliseconds, or 0 to disable the
+     * speculative match and always wait for the referrer before sending the match (default).
+     */
+    public void setInstallReferrerTimeout(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Install referrer timeout cannot be negative");
+        }
+        this.installReferrerTimeoutMs = timeoutMillis;
+    }
+
+    /**
+     * Sends the match requests in a compact binary format instead of JSON, using a fraction of the bytes.
+     * Useful on slow or metered connections. If the server does not support it, the SDK falls back to JSON.
+     *
+     * @param enabled true to use the binary format. Default is false.
+     */
+    public void setBinaryWireFormat(boolean enabled) {
+        this.binaryWireFormat = enabled;
+    }
+
+    public void trackConversion(String eventName, MatchBundle mb) {
+        this.trackConversion(eventName, mb, null);
+    }
+
+    /**
+     * Records a post-install conversion event (e.g. a purchase) to be uploaded to Bridgee.
+     * Events are buffered on the device and sent in batches, so calling this method is cheap
+     * and never blocks on the network.
+     *
+     * @param eventName the name of the conversion event.
+     * @param mb the event data, e.g. value, currency or order id.
+     * @param idempotencyKey an unique key for this conversion (e.g. the order id). The same key is
+     * only counted once, even if tracked more than once. If null, a random key is generated.
+     */
+    public void trackConversion(String eventName, MatchBundle mb, String idempotencyKey) {
+        if (eventName == null || eventName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Event name cannot be null or empty");
+        }
+
+        Bundle params = mb != null ? mb.toBundle() : new Bundle();
+        ConversionEvent event = ConversionEvent.fromBundle(eventName, idempotencyKey, params);
+        Log.d(TAG, "Tracking conversion: " + eventName + " >> " + params);
+        conversionEventQueue.enqueue(event);
+    }
+
+    /**
+     * Uploads the buffered conversion events right away. The SDK already does this on its own
+     * when the app goes to background, so you only need it in special cases (e.g. before logout).
+     */
+    public void flushConversions() {
+        conversionEventQueue.flush();
+    }
+
     /****** PRIVATE METHODS *******/
 
     private void setUserProperty(String name, String value) {
@@ -158,39 +244,148 @@ public class BridgeeSDK {
         this.tenantId = tenantId;
         this.tenantKey = tenantKey;
         this.instalReferrerResolver = new InstallReferrerResolver(this.context);
+        this.conversionEventQueue = new ConversionEventQueue(this.context, new ConversionApiClient(this.context, tenantId, tenantKey));
         this.dryRun = dryRun;
     }
 
     private void resolveAttribution(MatchBundle matchBundle, ResponseCallback<MatchResponse> callback) {
+        if (installReferrerTimeoutMs > 0) {
+            resolveSpeculativeAttribution(matchBundle, installReferrerTimeoutMs, callback);
+            return;
+        }
+
         resolveInstallReferrer(new ResponseCallback<String>() {
             @Override
             public void ok(String installReferrer) {
-                
-                matchBundle.withCustomParam("install_referrer", installReferrer);
+                resolveMatchWithReferrer(matchBundle, installReferrer, callback);
+            }
 
-                resolveMatch(matchBundle, new ResponseCallback<MatchResponse>() {
-                    @Override
-                    public void ok(MatchResponse matchResponse) {
-                        Log.d(TAG, "Match resolved: " + matchResponse);
-                        callback.ok(matchResponse);
-                    }
+            @Override
+            public void error(Exception e) {
+                Log.e(TAG, "Failed to resolve install referrer: " + e.getMessage());
+                callback.error(e);
+            }
+        });
+    }
+
+    /**
+     * Sends the match right away, in parallel with the install referrer resolution, so the provisional
+     * attribution is not delayed by a slow referrer. See {@link SpeculativeMatch}.
+     */
+    private void resolveSpeculativeAttribution(MatchBundle matchBundle, long timeoutMs, ResponseCallback<MatchResponse> callback) {
+        Handler handler = new Handler(Looper.getMainLooper());
+
+        SpeculativeMatch.MatchClient matchClient = new SpeculativeMatch.MatchClient() {
+            @Override
+            public void matchWithoutReferrer(String matchId, ResponseCallback<MatchResponse> callback) {
+                MatchBundle speculativeBundle = cloneMatchBundle(matchBundle);
+                speculativeBundle.withCustomParam("install_referrer", "pending");
+                speculativeBundle.withCustomParam("match_id", matchId);
+                resolveMatch(speculativeBundle, callback);
+            }
 
-                    @Override
-                    public void error(Exception e) {
-                        Log.e(TAG, "Failed to resolve match: " + e.getMessage());
-                        callback.error(e);
-                    }
-                });
+            @Override
+            public void match(String installReferrer, ResponseCallback<MatchResponse> callback) {
+                MatchBundle referrerBundle = cloneMatchBundle(matchBundle);
+                referrerBundle.withCustomParam("install_referrer", installReferrer);
+                resolveMatch(referrerBundle, callback);
+            }
+
+            @Override
+            public void complete(String matchId, String installReferrer, ResponseCallback<MatchResponse> callback) {
+                completeMatch(matchId, installReferrer, callback);
+            }
+        };
+
+        SpeculativeMatch.Scheduler scheduler = new SpeculativeMatch.Scheduler() {
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+
+        new SpeculativeMatch(UUID.randomUUID().toString(), timeoutMs, matchClient, this::resolveInstallReferrer, scheduler, callback).start();
+    }
+
+    private void resolveMatchWithReferrer(MatchBundle matchBundle, String installReferrer, ResponseCallback<MatchResponse> callback) {
+        matchBundle.withCustomParam("install_referrer", installReferrer);
+
+        MatchResponse provisional = resolveLocalAttribution(installReferrer);
+        if (provisional != null) {
+            Log.d(TAG, "Provisional attribution from install referrer: " + provisional);
+            callback.ok(provisional);
+        }
+
+        resolveMatch(matchBundle, new ResponseCallback<MatchResponse>() {
+            @Override
+            public void ok(MatchResponse matchResponse) {
+                Log.d(TAG, "Match resolved: " + matchResponse);
+                callback.ok(matchResponse);
             }
 
             @Override
             public void error(Exception e) {
-                Log.e(TAG, "Failed to resolve install referrer: " + e.getMessage());
+                Log.e(TAG, "Failed to resolve match: " + e.getMessage());
+                if (provisional == null) {
+                    callback.error(e);
+                    return;
+                }
+                // the referrer was conclusive, so it is the best final attribution we have
+                Log.d(TAG, "Keeping provisional attribution as final");
+                callback.ok(provisional.withProvisional(false));
+            }
+        });
+    }
+
+    /**
+     * Sends the install referrer of a speculative match. The callback receives null if the server
+     * does not return a new attribution, this is, if the speculative one is confirmed.
+     */
+    private void completeMatch(String matchId, String installReferrer, ResponseCallback<MatchResponse> callback) {
+        Bundle bundle = new Bundle();
+        bundle.putString("match_id", matchId);
+        bundle.putString("install_referrer", installReferrer);
+
+        MatchApiClient matchApiClient = new MatchApiClient(context, tenantId, tenantKey, binaryWireFormat);
+        matchApiClient.complete(bundle, new ResponseCallback<JSONObject>() {
+            @Override
+            public void ok(JSONObject response) {
+                matchApiClient.shutdown();
+                Log.d(TAG, "Speculative match completed with install referrer");
+                try {
+                    callback.ok(response.has("utm_source") ? toMatchResponse(response) : null);
+                }
+                catch (Exception e) {
+                    Log.e(TAG, "Error processing match completion response: " + e.getMessage(), e);
+                    callback.error(e);
+                }
+            }
+
+            @Override
+            public void error(Exception e) {
+                matchApiClient.shutdown();
+                Log.e(TAG, "Failed to complete speculative match: " + e.getMessage());
                 callback.error(e);
             }
         });
     }
 
+    /**
+     * @return the provisional attribution of a conclusive install referrer, or null
+     */
+    static MatchResponse resolveLocalAttribution(String installReferrer) {
+        if (installReferrer == null || !installReferrer.startsWith(InstallReferrerResolver.SUCCESS_PREFIX))
+            return null;
+
+        MatchResponse local = InstallReferrerParser.parse(installReferrer.substring(InstallReferrerResolver.SUCCESS_PREFIX.length()));
+        return local != null ? local.withProvisional(true) : null;
+    }
+
     private void resolveInstallReferrer(ResponseCallback<String> callback) {
         instalReferrerResolver.resolve(new ResponseCallback<String>() {
             @Override
@@ -209,17 +404,13 @@ public class BridgeeSDK {
 
     private <T extends MatchResponse> void resolveMatch(MatchBundle matchBundle, ResponseCallback<MatchResponse> callback) {
         // Create a new MatchApiClient instance for each call to avoid singleton issues
-        MatchApiClient matchApiClient = new MatchApiClient(context, tenantId, tenantKey);
+        MatchApiClient matchApiClient = new MatchApiClient(context, tenantId, tenantKey, binaryWireFormat);
 
         matchApiClient.match(matchBundle.toBundle(), new ResponseCallback<JSONObject>() {
             @Override
             public void ok(JSONObject response) {
                 try {                    
-                    MatchResponse matchResponse = new MatchResponse(
-                        response.getString("utm_source"), 
-                        response.getString("utm_medium"), 
-                        response.getString("utm_campaign")
-                    );
+                    MatchResponse matchResponse = toMatchResponse(response);
 
                     Log.d(TAG, "Match API call successful: " + matchResponse.toBundle());
                     callback.ok(matchResponse);
@@ -244,4 +435,12 @@ public class BridgeeSDK {
             }
         });
     }
+
+    private MatchResponse toMatchResponse(JSONObject response) throws JSONException {
+        return new MatchResponse(
+            response.getString("utm_source"), 
+            response.getString("utm_medium"), 
+            response.getString("utm_campaign")
+        );
+    }
 }
@@ -9,11 +9,17 @@ public class MatchResponse {
     private final String utmSource;
     private final String utmMedium;
     private final String utmCampaign;
+    private final boolean provisional;
 
     public MatchResponse(String utmSource, String utmMedium, String utmCampaign) {
+        this(utmSource, utmMedium, utmCampaign, false);
+    }
+
+    MatchResponse(String utmSource, String utmMedium, String utmCampaign, boolean provisional) {
         this.utmSource = utmSource;
         this.utmMedium = utmMedium;
         this.utmCampaign = utmCampaign;
+        this.provisional = provisional;
     }
 
     /**
@@ -37,6 +43,19 @@ public class MatchResponse {
         return utmCampaign; 
     }
 
+    /**
+     * @return true if this is an early attribution (e.g. resolved on the device from the install referrer)
+     * that is still waiting for the Bridgee API. A provisional response is always followed by
+     * a final one, with the confirmed or corrected attribution.
+     */
+    public boolean isProvisional() {
+        return provisional;
+    }
+
+    MatchResponse withProvisional(boolean provisional) {
+        return new MatchResponse(utmSource, utmMedium, utmCampaign, provisional);
+    }
+
     /**
      * Converts the response to an Android Bundle for analytics integration.
      * @return Bundle containing UTM parameters
@@ -64,6 +83,7 @@ public class MatchResponse {
                 "utmSource='" + utmSource + '\'' +
                 ", utmMedium='" + utmMedium + '\'' +
                 ", utmCampaign='" + utmCampaign + '\'' +
+                ", provisional=" + provisional +
                 '}';
     }
 }
@@ -7,6 +7,9 @@ package ai.bridgee.android.sdk;
 public interface ResponseCallback<T> {
     /**
      * Called when the operation completes successfully.
+     * For {@link BridgeeSDK#firstOpen}, it may be called twice: first with a provisional
+     * {@link MatchResponse} (see {@link MatchResponse#isProvisional()}) and then with the final one.
+     * After a provisional response, {@link #error} is never called.
      * @param response The response object
      */
     void ok(T response);
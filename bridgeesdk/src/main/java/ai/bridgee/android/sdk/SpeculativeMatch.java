@@ -0,0 +1,284 @@
+package ai.bridgee.android.sdk;
+
+import android.util.Log;
+
+import ai.bridgee.android.sdk.internal.api.InstallReferrerResolver;
+
+/**
+ * Speculative match of firstOpen. The match is sent right away, in parallel with the install referrer
+ * resolution, and the referrer is sent later to /match/complete with the same match_id, so the server
+ * can complete the record.
+ *
+ * The callback first receives the earliest attribution available (a conclusive local referrer or the
+ * speculative response) as provisional, and then the final one: the answer of /match/complete, or the
+ * speculative response when no usable referrer arrives within the timeout. A referrer that arrives after
+ * the timeout is still sent to /match/complete, but the callback is not called again.
+ *
+ * Events come from the main thread (referrer, timeout) and from the API client threads, so every
+ * transition is synchronized, and the callback is always called outside the lock.
+ */
+class SpeculativeMatch {
+
+    private static final String TAG = "BRIDGEE-SDK";
+
+    interface MatchClient {
+        /**
+         * Sends the match before the install referrer is known.
+         */
+        void matchWithoutReferrer(String matchId, ResponseCallback<MatchResponse> callback);
+
+        /**
+         * Sends a regular match with the install referrer.
+         */
+        void match(String installReferrer, ResponseCallback<MatchResponse> callback);
+
+        /**
+         * Sends the install referrer of a speculative match. The callback receives null
+         * when the server keeps the speculative attribution.
+         */
+        void complete(String matchId, String installReferrer, ResponseCallback<MatchResponse> callback);
+    }
+
+    interface ReferrerSource {
+        void resolve(ResponseCallback<String> callback);
+    }
+
+    interface Scheduler {
+        void postDelayed(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    private final String matchId;
+    private final long timeoutMs;
+    private final MatchClient matchClient;
+    private final ReferrerSource referrerSource;
+    private final Scheduler scheduler;
+    private final ResponseCallback<MatchResponse> callback;
+    private final Runnable timeout = this::onTimeout;
+
+    private boolean referrerDone = false;
+    private String installReferrer;
+    private boolean speculativeIsFinal = false;
+    private boolean speculativeDone = false;
+    private MatchResponse speculativeResponse;
+    private Exception speculativeError;
+    private MatchResponse provisional;
+    private boolean completionStarted = false;
+    private boolean finished = false;
+
+    SpeculativeMatch(String matchId, long timeoutMs, MatchClient matchClient, ReferrerSource referrerSource,
+                     Scheduler scheduler, ResponseCallback<MatchResponse> callback) {
+        this.matchId = matchId;
+        this.timeoutMs = timeoutMs;
+        this.matchClient = matchClient;
+        this.referrerSource = referrerSource;
+        this.scheduler = scheduler;
+        this.callback = callback;
+    }
+
+    void start() {
+        scheduler.postDelayed(timeout, timeoutMs);
+
+        matchClient.matchWithoutReferrer(matchId, new ResponseCallback<MatchResponse>() {
+            @Override
+            public void ok(MatchResponse matchResponse) {
+                Log.d(TAG, "Speculative match resolved: " + matchResponse);
+                onSpeculativeResult(matchResponse, null);
+            }
+
+            @Override
+            public void error(Exception e) {
+                Log.e(TAG, "Failed to resolve speculative match: " + e.getMessage());
+                onSpeculativeResult(null, e);
+            }
+        });
+
+        referrerSource.resolve(new ResponseCallback<String>() {
+            @Override
+            public void ok(String installReferrer) {
+                onReferrer(installReferrer);
+            }
+
+            @Override
+            public void error(Exception e) {
+                onReferrer(null);
+            }
+        });
+    }
+
+    private void onReferrer(String referrer) {
+        boolean usable = referrer != null && referrer.startsWith(InstallReferrerResolver.SUCCESS_PREFIX);
+        Delivery delivery = new Delivery();
+        boolean complete;
+        synchronized (this) {
+            // the resolver may call back again, e.g. when the service disconnects after the setup
+            if (referrerDone)
+                return;
+            referrerDone = true;
+
+            if (usable) {
+                installReferrer = referrer;
+                if (!speculativeIsFinal && provisional == null) {
+                    MatchResponse local = BridgeeSDK.resolveLocalAttribution(referrer);
+                    if (local != null) {
+                        Log.d(TAG, "Provisional attribution from install referrer: " + local);
+                        provisional = local;
+                        delivery.response = local;
+                    }
+                }
+            }
+            else {
+                Log.w(TAG, "Install referrer not available (" + referrer + "), the speculative match is final");
+                makeSpeculativeFinal(delivery);
+            }
+            complete = shouldStartCompletion();
+        }
+        scheduler.cancel(timeout);
+
+        delivery.run();
+        if (complete)
+            startCompletion();
+    }
+
+    private void onTimeout() {
+        Delivery delivery = new Delivery();
+        synchronized (this) {
+            if (referrerDone)
+                return;
+
+            Log.w(TAG, "Install referrer not resolved in " + timeoutMs + "ms, the speculative match is final");
+            makeSpeculativeFinal(delivery);
+        }
+        delivery.run();
+    }
+
+    private void onSpeculativeResult(MatchResponse matchResponse, Exception e) {
+        Delivery delivery = new Delivery();
+        boolean complete;
+        synchronized (this) {
+            speculativeDone = true;
+            speculativeResponse = matchResponse;
+            speculativeError = e;
+
+            if (speculativeIsFinal) {
+                if (!finished) {
+                    finished = true;
+                    delivery.finalResult(matchResponse, e);
+                }
+            }
+            else if (matchResponse != null && provisional == null) {
+                provisional = matchResponse.withProvisional(true);
+                delivery.response = provisional;
+            }
+            complete = shouldStartCompletion();
+        }
+
+        delivery.run();
+        if (complete)
+            startCompletion();
+    }
+
+    // must hold the lock
+    private void makeSpeculativeFinal(Delivery delivery) {
+        if (speculativeIsFinal)
+            return;
+        speculativeIsFinal = true;
+
+        if (speculativeDone && !finished) {
+            finished = true;
+            delivery.finalResult(speculativeResponse, speculativeError);
+        }
+    }
+
+    // must hold the lock
+    private boolean shouldStartCompletion() {
+        if (completionStarted || installReferrer == null || !speculativeDone)
+            return false;
+        // without a speculative record there is nothing to complete, and nobody waits for a new match
+        if (speculativeResponse == null && finished)
+            return false;
+
+        completionStarted = true;
+        return true;
+    }
+
+    private void startCompletion() {
+        if (speculativeResponse != null) {
+            matchClient.complete(matchId, installReferrer, new ResponseCallback<MatchResponse>() {
+                @Override
+                public void ok(MatchResponse matchResponse) {
+                    Log.d(TAG, "Speculative match completed with install referrer");
+                    finish(matchResponse != null ? matchResponse : speculativeResponse, null);
+                }
+
+                @Override
+                public void error(Exception e) {
+                    Log.e(TAG, "Failed to complete speculative match: " + e.getMessage());
+                    finish(null, e);
+                }
+            });
+        }
+        else {
+            // the speculative match failed, so there is nothing to complete: send a regular match instead
+            matchClient.match(installReferrer, new ResponseCallback<MatchResponse>() {
+                @Override
+                public void ok(MatchResponse matchResponse) {
+                    finish(matchResponse, null);
+                }
+
+                @Override
+                public void error(Exception e) {
+                    finish(null, e);
+                }
+            });
+        }
+    }
+
+    private void finish(MatchResponse matchResponse, Exception e) {
+        MatchResponse fallback;
+        synchronized (this) {
+            if (finished) {
+                Log.d(TAG, "Attribution already final, ignoring the follow-up result");
+                return;
+            }
+            finished = true;
+            fallback = provisional;
+        }
+
+        if (matchResponse != null) {
+            Log.d(TAG, "Final attribution: " + matchResponse);
+            callback.ok(matchResponse.withProvisional(false));
+        }
+        else if (fallback != null) {
+            // the follow-up failed, so the best attribution we have is the provisional one
+            Log.d(TAG, "Keeping provisional attribution as final");
+            callback.ok(fallback.withProvisional(false));
+        }
+        else {
+            callback.error(e);
+        }
+    }
+
+    /**
+     * What to tell the callback, decided under the lock and delivered outside of it.
+     */
+    private class Delivery {
+        MatchResponse response;
+        Exception error;
+
+        void finalResult(MatchResponse matchResponse, Exception e) {
+            if (matchResponse != null)
+                response = matchResponse.withProvisional(false);
+            else
+                error = e;
+        }
+
+        void run() {
+            if (response != null)
+                callback.ok(response);
+            else if (error != null)
+                callback.error(error);
+        }
+    }
+}
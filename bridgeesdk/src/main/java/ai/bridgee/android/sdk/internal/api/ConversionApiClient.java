@@ -0,0 +1,115 @@
+package ai.bridgee.android.sdk.internal.api;
+
+import android.content.Context;
+
+import ai.bridgee.android.sdk.internal.model.ConversionBatchRequest;
+import ai.bridgee.android.sdk.internal.model.ConversionEvent;
+import ai.bridgee.android.sdk.internal.queue.ConversionUploader;
+import ai.bridgee.android.sdk.internal.util.NetworkStatus;
+import ai.bridgee.android.sdk.internal.util.TenantTokenEncoder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads batches of conversion events to the Bridgee API. The body is gzip compressed and the
+ * request carries an idempotency key derived from the events it contains, so retrying the same
+ * batch never creates duplicates on the server.
+ *
+ * Calls are blocking: the caller is expected to run them on its own background thread.
+ */
+public class ConversionApiClient implements ConversionUploader {
+    private static final String BASE_URL = "https://api.bridgee.ai/";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int CONNECTION_TIMEOUT_MS = 5000; // 5 segundos
+    private static final int READ_TIMEOUT_MS = 10000; // 10 segundos
+
+    private final Gson gson;
+    private final Context context;
+    private final String tenantId;
+    private final String tenantKey;
+
+    public ConversionApiClient(Context context, String tenantId, String tenantKey) {
+        this.context = context.getApplicationContext();
+        this.tenantId = tenantId;
+        this.tenantKey = tenantKey;
+        this.gson = new GsonBuilder().create();
+    }
+
+    /**
+     * Sends a batch of events.
+     * @param batch the events to upload
+     * @throws ConversionApiException if the server does not accept the batch
+     * @throws Exception if there is no connection or the request fails
+     */
+    @Override
+    public void send(ConversionBatchRequest batch) throws Exception {
+        if (!NetworkStatus.isAvailable(context)) {
+            throw new Exception("without internet connection");
+        }
+
+        HttpURLConnection urlConnection = null;
+        try {
+            byte[] json = gson.toJson(batch).getBytes(StandardCharsets.UTF_8);
+
+            URL url = new URL(BASE_URL + "events");
+            urlConnection = (HttpURLConnection) url.openConnection();
+
+            urlConnection.setRequestMethod("POST");
+            urlConnection.setRequestProperty("Content-Type", CONTENT_TYPE);
+            urlConnection.setRequestProperty("Content-Encoding", "gzip");
+            urlConnection.setRequestProperty("Accept", "application/json");
+            urlConnection.setRequestProperty("Idempotency-Key", batchKey(batch));
+            urlConnection.setConnectTimeout(CONNECTION_TIMEOUT_MS);
+            urlConnection.setReadTimeout(READ_TIMEOUT_MS);
+            urlConnection.setDoOutput(true);
+
+            String token = TenantTokenEncoder.encodeToken(tenantId, tenantKey);
+            urlConnection.setRequestProperty("x-tenant-token", token);
+
+            try (OutputStream os = new GZIPOutputStream(urlConnection.getOutputStream())) {
+                os.write(json, 0, json.length);
+            }
+
+            int responseCode = urlConnection.getResponseCode();
+
+            // 409 means the server already has this batch, which is what a retry wants anyway
+            if (responseCode / 100 == 2 || responseCode == HttpURLConnection.HTTP_CONFLICT) {
+                return;
+            }
+
+            StringBuilder response = new StringBuilder();
+            InputStream errorStream = urlConnection.getErrorStream();
+            if (errorStream != null) {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+                    String responseLine;
+                    while ((responseLine = br.readLine()) != null) {
+                        response.append(responseLine.trim());
+                    }
+                }
+            }
+            throw new ConversionApiException(responseCode, "Error from server: " + responseCode + " - " + response.toString());
+        }
+        finally {
+            if (urlConnection != null)
+                urlConnection.disconnect();
+        }
+    }
+
+    private static String batchKey(ConversionBatchRequest batch) {
+        StringBuilder keys = new StringBuilder();
+        for (ConversionEvent event : batch.getEvents()) {
+            keys.append(event.getIdempotencyKey()).append(';');
+        }
+        return UUID.nameUUIDFromBytes(keys.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
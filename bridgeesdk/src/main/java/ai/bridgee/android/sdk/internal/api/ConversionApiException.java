@@ -0,0 +1,27 @@
+package ai.bridgee.android.sdk.internal.api;
+
+/**
+ * Error returned by the Bridgee API when uploading conversion events.
+ */
+public class ConversionApiException extends Exception {
+
+    private final int statusCode;
+
+    public ConversionApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return true if sending the same batch again may succeed. Only errors about the payload itself
+     * (400, 413, 422) are permanent: auth errors such as 401/403 may be fixed by a key rotation or
+     * on the server, so they are retried instead of losing the buffered events.
+     */
+    public boolean isRetryable() {
+        return statusCode != 400 && statusCode != 413 && statusCode != 422;
+    }
+}
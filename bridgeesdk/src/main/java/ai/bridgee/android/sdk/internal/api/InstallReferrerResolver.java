@@ -16,6 +16,7 @@ import ai.bridgee.android.sdk.ResponseCallback;
 public class InstallReferrerResolver {
     
     private static final String TAG = "InstallReferrerResolver";
+    public static final String SUCCESS_PREFIX = "success:";
     
     private final Context context;
     
@@ -42,7 +43,7 @@ public class InstallReferrerResolver {
                             if (referrerUrl == null || referrerUrl.trim().isEmpty())
                                 callback.ok("error:empty");
                             else
-                                callback.ok("success:" + referrerUrl);
+                                callback.ok(SUCCESS_PREFIX + referrerUrl);
                         } 
                         catch (RemoteException e) {
                             Log.e(TAG, "RemoteException getting install referrer", e);
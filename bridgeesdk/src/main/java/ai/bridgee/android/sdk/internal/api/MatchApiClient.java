@@ -1,15 +1,13 @@
 package ai.bridgee.android.sdk.internal.api;
 
 import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
-import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
 import ai.bridgee.android.sdk.internal.model.MatchRequest;
+import ai.bridgee.android.sdk.internal.model.MatchRequestCodec;
+import ai.bridgee.android.sdk.internal.util.NetworkStatus;
 import ai.bridgee.android.sdk.internal.util.TenantTokenEncoder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -34,44 +32,59 @@ public class MatchApiClient {
     private static final String CONTENT_TYPE = "application/json; charset=utf-8";
     private static final int CONNECTION_TIMEOUT_MS = 500; // 0.5 segundos
     private static final int READ_TIMEOUT_MS = 1500; // 1.5 segundos
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+
+    // once the server rejects the binary format, stick to JSON for the rest of the process
+    static volatile boolean binaryFormatRejected = false;
     
     private final Gson gson;
     private final ExecutorService executorService;
     private final Context context;
+    private final String baseUrl;
     private final String tenantId;
     private final String tenantKey;
+    private final boolean binaryFormat;
 
     public MatchApiClient(Context context, String tenantId, String tenantKey) {
-        this.context = context.getApplicationContext();
+        this(context, tenantId, tenantKey, false);
+    }
+
+    /**
+     * @param binaryFormat send the request body with {@link MatchRequestCodec} instead of JSON.
+     * If the server answers 415 (Unsupported Media Type), the request is sent again as JSON.
+     */
+    public MatchApiClient(Context context, String tenantId, String tenantKey, boolean binaryFormat) {
+        this(context.getApplicationContext(), BASE_URL, tenantId, tenantKey, binaryFormat);
+    }
+
+    /**
+     * @param context used to check the network before each request, or null to skip the check (tests)
+     * @param baseUrl the API address, ending with a slash
+     */
+    MatchApiClient(Context context, String baseUrl, String tenantId, String tenantKey, boolean binaryFormat) {
+        this.context = context;
+        this.baseUrl = baseUrl;
         this.tenantId = tenantId;
         this.tenantKey = tenantKey;
+        this.binaryFormat = binaryFormat;
         this.gson = new GsonBuilder().create();
         this.executorService = Executors.newSingleThreadExecutor();
     }
 
-    private boolean isNetworkAvailable() {
-        ConnectivityManager connectivityManager = 
-            (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        
-        if (connectivityManager == null) {
-            return false;
-        }
+    public void match(android.os.Bundle bundle, ResponseCallback<JSONObject> callback) {
+        post("match", bundle, callback);
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            android.net.Network network = connectivityManager.getActiveNetwork();
-            if (network == null) return false;
-            
-            NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-            return capabilities != null && 
-                   capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
-        } else {
-            NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-            return activeNetwork != null && activeNetwork.isConnected();
-        }
+    /**
+     * Completes a match that was sent before the install referrer was available.
+     * The bundle must have the same match_id sent in the original match.
+     */
+    public void complete(android.os.Bundle bundle, ResponseCallback<JSONObject> callback) {
+        post("match/complete", bundle, callback);
     }
 
-    public void match(android.os.Bundle bundle, ResponseCallback<JSONObject> callback) {
-        if (!isNetworkAvailable()) {
+    private void post(String path, android.os.Bundle bundle, ResponseCallback<JSONObject> callback) {
+        if (context != null && !NetworkStatus.isAvailable(context)) {
             callback.error(new Exception("without internet connection"));
             return;
         }
@@ -80,13 +93,16 @@ public class MatchApiClient {
             HttpURLConnection urlConnection = null;
             try {
                 MatchRequest matchRequest = MatchRequest.fromBundle(bundle);
-                String json = gson.toJson(matchRequest);
+                boolean binary = binaryFormat && !binaryFormatRejected;
+                byte[] input = binary ? 
+                    MatchRequestCodec.encode(matchRequest.getMetadata()) : 
+                    gson.toJson(matchRequest).getBytes(StandardCharsets.UTF_8);
                 
-                URL url = new URL(BASE_URL + "match");
+                URL url = new URL(baseUrl + path);
                 urlConnection = (HttpURLConnection) url.openConnection();
                 
                 urlConnection.setRequestMethod("POST");
-                urlConnection.setRequestProperty("Content-Type", CONTENT_TYPE);
+                urlConnection.setRequestProperty("Content-Type", binary ? MatchRequestCodec.CONTENT_TYPE : CONTENT_TYPE);
                 urlConnection.setRequestProperty("Accept", "application/json");
                 urlConnection.setConnectTimeout(CONNECTION_TIMEOUT_MS);
                 urlConnection.setReadTimeout(READ_TIMEOUT_MS);
@@ -96,11 +112,17 @@ public class MatchApiClient {
                 urlConnection.setRequestProperty("x-tenant-token", token);
                 
                 try (DataOutputStream wr = new DataOutputStream(urlConnection.getOutputStream())) {
-                    byte[] input = json.getBytes(StandardCharsets.UTF_8);
                     wr.write(input, 0, input.length);
                 }
                 
                 int responseCode = urlConnection.getResponseCode();
+
+                if (binary && responseCode == HTTP_UNSUPPORTED_MEDIA_TYPE) {
+                    Log.w(TAG, "Binary match format not supported by server, falling back to JSON");
+                    binaryFormatRejected = true;
+                    post(path, bundle, callback);
+                    return;
+                }
                 
                 StringBuilder response = new StringBuilder();
                 try (BufferedReader br = new BufferedReader(
@@ -0,0 +1,20 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConversionBatchRequest {
+
+    @SerializedName("events")
+    private List<ConversionEvent> events;
+
+    public ConversionBatchRequest(List<ConversionEvent> events) {
+        this.events = events != null ? events : new ArrayList<>();
+    }
+
+    public List<ConversionEvent> getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,48 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import android.os.Bundle;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A post-install conversion event. It carries the same metadata shape as {@link MatchRequest},
+ * plus the event name, the moment it happened and an idempotency key so the server can
+ * discard duplicates when a batch is retried.
+ */
+public class ConversionEvent extends MatchRequest {
+
+    @SerializedName("event_name")
+    private String eventName;
+
+    @SerializedName("idempotency_key")
+    private String idempotencyKey;
+
+    @SerializedName("timestamp")
+    private long timestamp;
+
+    public ConversionEvent(String eventName, String idempotencyKey, long timestamp, List<MetadataItem> metadata) {
+        super(metadata);
+        this.eventName = eventName;
+        this.idempotencyKey = idempotencyKey;
+        this.timestamp = timestamp;
+    }
+
+    public static ConversionEvent fromBundle(String eventName, String idempotencyKey, Bundle bundle) {
+        String key = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+        return new ConversionEvent(eventName, key, System.currentTimeMillis(), MatchRequest.fromBundle(bundle).getMetadata());
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
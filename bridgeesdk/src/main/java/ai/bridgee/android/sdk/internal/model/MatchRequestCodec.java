@@ -0,0 +1,139 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the metadata of a {@link MatchRequest}, sent with the {@link #CONTENT_TYPE}
+ * content type. It only depends on {@link MetadataItem} and the JDK, so a server or a local test
+ * server can use the same class.
+ *
+ * Layout (varints are unsigned LEB128):
+ * <pre>
+ *   version:u8  count:varint  item*
+ *   item   = keyRef:varint [key:string] value:string
+ *   string = length+1:varint utf8Bytes   (a single 0 means null)
+ * </pre>
+ * keyRef is the 1-based index of the key in {@link #WELL_KNOWN_KEYS}, or 0 when the key
+ * is written inline.
+ */
+public class MatchRequestCodec {
+
+    public static final String CONTENT_TYPE = "application/vnd.bridgee.match+binary";
+    public static final int VERSION = 1;
+
+    // the index of each key is part of the wire format: only append new keys to the end
+    private static final String[] WELL_KNOWN_KEYS = {
+        "event_name",
+        "install_referrer",
+        "match_id",
+        "email",
+        "phone",
+        "name",
+        "gclid",
+    };
+
+    public static byte[] encode(List<MetadataItem> metadata) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + metadata.size() * 32);
+
+        out.write(VERSION);
+        writeVarint(out, metadata.size());
+        for (MetadataItem item : metadata) {
+            int keyRef = keyRef(item.getKey());
+            writeVarint(out, keyRef);
+            if (keyRef == 0)
+                writeString(out, item.getKey());
+            writeString(out, item.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    public static List<MetadataItem> decode(byte[] data) throws IOException {
+        int[] pos = {0};
+        if (data.length == 0 || (data[0] & 0xFF) != VERSION) {
+            throw new IOException("Unsupported match payload version");
+        }
+        pos[0] = 1;
+
+        int count = readVarint(data, pos);
+        List<MetadataItem> metadata = new ArrayList<>(Math.min(count, data.length));
+        for (int i = 0; i < count; i++) {
+            int keyRef = readVarint(data, pos);
+            String key;
+            if (keyRef == 0)
+                key = readString(data, pos);
+            else if (keyRef <= WELL_KNOWN_KEYS.length)
+                key = WELL_KNOWN_KEYS[keyRef - 1];
+            else
+                throw new IOException("Unknown key reference: " + keyRef);
+
+            metadata.add(new MetadataItem(key, readString(data, pos)));
+        }
+        if (pos[0] != data.length) {
+            throw new IOException("Trailing bytes in match payload");
+        }
+        return metadata;
+    }
+
+    private static int keyRef(String key) {
+        for (int i = 0; i < WELL_KNOWN_KEYS.length; i++) {
+            if (WELL_KNOWN_KEYS[i].equals(key))
+                return i + 1;
+        }
+        return 0;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static String readString(byte[] data, int[] pos) throws IOException {
+        int length = readVarint(data, pos) - 1;
+        if (length < 0)
+            return null;
+        if (length > data.length - pos[0]) {
+            throw new IOException("Truncated match payload");
+        }
+        String value = new String(data, pos[0], length, StandardCharsets.UTF_8);
+        pos[0] += length;
+        return value;
+    }
+
+    private static int readVarint(byte[] data, int[] pos) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IOException("Truncated match payload");
+            }
+            int b = data[pos[0]++] & 0xFF;
+            // the fifth byte only has room for the 4 high bits of the int
+            if (shift == 28 && (b & 0x70) != 0) {
+                throw new IOException("Varint out of range");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0)
+                    throw new IOException("Varint out of range");
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in match payload");
+    }
+}
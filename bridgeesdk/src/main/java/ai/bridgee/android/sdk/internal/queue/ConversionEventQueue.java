@@ -0,0 +1,199 @@
+package ai.bridgee.android.sdk.internal.queue;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import ai.bridgee.android.sdk.internal.api.ConversionApiException;
+import ai.bridgee.android.sdk.internal.model.ConversionBatchRequest;
+import ai.bridgee.android.sdk.internal.model.ConversionEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers conversion events on disk and uploads them in batches. A batch is sent as soon as
+ * {@link #FLUSH_THRESHOLD} events are pending, when the flush interval ({@link #FLUSH_INTERVAL_MS}) has passed
+ * since the first pending event, or when the app goes to background.
+ *
+ * When an upload fails with a temporary error, the events stay in the buffer and the queue backs
+ * off exponentially: no automatic upload is tried until the backoff expires. Batches whose payload
+ * is rejected by the server (400, 413, 422) are discarded, so they never block the events behind them.
+ *
+ * All the state is touched only from the internal executor, so no locking is needed.
+ */
+public class ConversionEventQueue implements ComponentCallbacks2 {
+
+    private static final String TAG = "BRIDGEE-SDK";
+    private static final String FILE_NAME = "bridgee_conversions.log";
+    static final int FLUSH_THRESHOLD = 20;
+    static final int MAX_BATCH_SIZE = 50;
+    static final int MAX_PENDING_EVENTS = 1000;
+    static final long FLUSH_INTERVAL_MS = 30 * 1000;
+    static final long MAX_BACKOFF_MS = 60 * 60 * 1000;
+
+    private final ConversionUploader uploader;
+    private final ConversionEventStore store;
+    private final long flushIntervalMs;
+    final ScheduledExecutorService executorService;
+    private final List<ConversionEvent> pending = new ArrayList<>();
+    private final Set<String> pendingKeys = new HashSet<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private int consecutiveFailures = 0;
+    private long backoffUntil = 0;
+
+    public ConversionEventQueue(Context context, ConversionUploader uploader) {
+        this(new ConversionEventStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME)),
+                uploader, Executors.newSingleThreadScheduledExecutor(), FLUSH_INTERVAL_MS);
+        context.getApplicationContext().registerComponentCallbacks(this);
+    }
+
+    ConversionEventQueue(ConversionEventStore store, ConversionUploader uploader, ScheduledExecutorService executorService, long flushIntervalMs) {
+        this.store = store;
+        this.flushIntervalMs = flushIntervalMs;
+        this.uploader = uploader;
+        this.executorService = executorService;
+
+        executorService.execute(() -> {
+            for (ConversionEvent event : store.load()) {
+                if (pendingKeys.add(event.getIdempotencyKey()))
+                    pending.add(event);
+            }
+            if (!pending.isEmpty())
+                scheduleFlush(flushIntervalMs);
+        });
+    }
+
+    /**
+     * Adds an event to the buffer. Events with an idempotency key already pending are ignored.
+     * @param event the event to upload
+     */
+    public void enqueue(ConversionEvent event) {
+        executorService.execute(() -> {
+            if (!pendingKeys.add(event.getIdempotencyKey())) {
+                Log.d(TAG, "Duplicated conversion event ignored: " + event.getIdempotencyKey());
+                return;
+            }
+
+            pending.add(event);
+            if (pending.size() > MAX_PENDING_EVENTS) {
+                // drop a chunk at once, so a full buffer is not rewritten on every new event
+                int dropped = MAX_PENDING_EVENTS / 10;
+                Log.w(TAG, "Conversion buffer is full, dropping " + dropped + " oldest events");
+                removeHead(dropped);
+            }
+            else {
+                store.append(event);
+            }
+
+            if (pending.size() >= FLUSH_THRESHOLD && !isBackingOff())
+                flushNow();
+            else
+                scheduleFlush(flushIntervalMs);
+        });
+    }
+
+    /**
+     * Uploads every pending event right away, even if the queue is backing off after a failure.
+     */
+    public void flush() {
+        executorService.execute(this::flushNow);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // the app UI is no longer visible, so this is our last good chance to upload
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            executorService.execute(() -> {
+                if (isBackingOff())
+                    return;
+                Log.d(TAG, "App went to background, flushing conversion events");
+                flushNow();
+            });
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    boolean isBackingOff() {
+        return currentTimeMillis() < backoffUntil;
+    }
+
+    private void flushNow() {
+        while (!pending.isEmpty()) {
+            List<ConversionEvent> batch = new ArrayList<>(pending.subList(0, Math.min(MAX_BATCH_SIZE, pending.size())));
+            try {
+                uploader.send(new ConversionBatchRequest(batch));
+                Log.d(TAG, "Conversion batch uploaded: " + batch.size() + " events");
+            }
+            catch (ConversionApiException e) {
+                if (e.isRetryable()) {
+                    backOff(e);
+                    return;
+                }
+                Log.e(TAG, "Conversion batch rejected, discarding " + batch.size() + " events: " + e.getMessage());
+            }
+            catch (Exception e) {
+                backOff(e);
+                return;
+            }
+
+            consecutiveFailures = 0;
+            backoffUntil = 0;
+            removeHead(batch.size());
+        }
+    }
+
+    private void backOff(Exception e) {
+        consecutiveFailures++;
+        long delay = Math.min(flushIntervalMs << Math.min(consecutiveFailures - 1, 16), MAX_BACKOFF_MS);
+        backoffUntil = currentTimeMillis() + delay;
+        Log.e(TAG, "Failed to upload conversion batch, retrying in " + delay + "ms: " + e.getMessage());
+
+        if (scheduledFlush != null)
+            scheduledFlush.cancel(false);
+        scheduledFlush = null;
+        scheduleFlush(delay);
+    }
+
+    private void removeHead(int count) {
+        List<ConversionEvent> head = pending.subList(0, Math.min(count, pending.size()));
+        for (ConversionEvent event : head) {
+            pendingKeys.remove(event.getIdempotencyKey());
+        }
+        head.clear();
+        store.rewrite(pending);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (scheduledFlush != null)
+            return;
+
+        scheduledFlush = executorService.schedule(() -> {
+            scheduledFlush = null;
+            flushNow();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,98 @@
+package ai.bridgee.android.sdk.internal.queue;
+
+import android.util.Log;
+
+import ai.bridgee.android.sdk.internal.model.ConversionEvent;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of pending conversion events, one JSON event per line. Adding an event only
+ * appends its line; the file is rewritten only when events leave the queue, once per batch.
+ */
+public class ConversionEventStore {
+
+    private static final String TAG = "BRIDGEE-SDK";
+
+    private final File file;
+    private final Gson gson;
+
+    public ConversionEventStore(File file) {
+        this.file = file;
+        this.gson = new GsonBuilder().create();
+    }
+
+    public void append(ConversionEvent event) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(gson.toJson(event));
+            writer.write('\n');
+        }
+        catch (IOException e) {
+            Log.e(TAG, "Failed to store conversion event", e);
+        }
+    }
+
+    /**
+     * Replaces the whole log with the given events.
+     */
+    public void rewrite(List<ConversionEvent> events) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (ConversionEvent event : events) {
+                writer.write(gson.toJson(event));
+                writer.write('\n');
+            }
+        }
+        catch (IOException e) {
+            Log.e(TAG, "Failed to store conversion events", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace conversion events file");
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Reads the pending events. Lines that cannot be parsed (e.g. a partial write when the
+     * process was killed) are skipped.
+     */
+    public List<ConversionEvent> load() {
+        List<ConversionEvent> events = new ArrayList<>();
+        if (!file.exists())
+            return events;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                try {
+                    ConversionEvent event = gson.fromJson(line, ConversionEvent.class);
+                    if (event != null && event.getIdempotencyKey() != null)
+                        events.add(event);
+                }
+                catch (Exception e) {
+                    Log.w(TAG, "Skipping corrupted conversion event");
+                }
+            }
+        }
+        catch (IOException e) {
+            Log.e(TAG, "Failed to load pending conversion events", e);
+        }
+        return events;
+    }
+}
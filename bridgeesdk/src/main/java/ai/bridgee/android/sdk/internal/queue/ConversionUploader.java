@@ -0,0 +1,16 @@
+package ai.bridgee.android.sdk.internal.queue;
+
+import ai.bridgee.android.sdk.internal.model.ConversionBatchRequest;
+
+/**
+ * Sends a batch of conversion events. Implementations block until the upload finishes.
+ */
+public interface ConversionUploader {
+
+    /**
+     * @param batch the events to upload
+     * @throws Exception if the upload fails. A {@link ai.bridgee.android.sdk.internal.api.ConversionApiException}
+     * that is not retryable makes the queue discard the batch; any other error is retried later.
+     */
+    void send(ConversionBatchRequest batch) throws Exception;
+}
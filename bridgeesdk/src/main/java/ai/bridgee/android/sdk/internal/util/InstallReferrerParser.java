@@ -0,0 +1,97 @@
+package ai.bridgee.android.sdk.internal.util;
+
+import android.util.Log;
+
+import ai.bridgee.android.sdk.MatchResponse;
+
+import java.net.URLDecoder;
+
+/**
+ * Extracts attribution parameters from a Google Play install referrer
+ * (e.g. "utm_source=google&utm_medium=cpc&utm_campaign=summer").
+ *
+ * The referrer is scanned in place: only the values of the known keys are copied out,
+ * and they are only decoded when they contain escaped characters.
+ */
+public class InstallReferrerParser {
+
+    private static final String TAG = "InstallReferrerParser";
+    private static final String UTM_SOURCE = "utm_source";
+    private static final String UTM_MEDIUM = "utm_medium";
+    private static final String UTM_CAMPAIGN = "utm_campaign";
+    private static final String GCLID = "gclid";
+    private static final String NOT_SET = "(not set)";
+    // Play fills the referrer with these values for installs that did not come from a campaign
+    private static final String ORGANIC_SOURCE = "google-play";
+    private static final String ORGANIC_MEDIUM = "organic";
+    private static final String GCLID_SOURCE = "google";
+    private static final String GCLID_MEDIUM = "cpc";
+
+    /**
+     * Builds the attribution when the referrer is conclusive, this is, when it has
+     * both utm_source and utm_medium, or a gclid (which means a Google Ads click, so missing
+     * UTM values default to google / cpc). Organic installs (utm_source=google-play or
+     * utm_medium=organic) are never conclusive: they are the ones the server has to match.
+     * @param referrer the raw install referrer
+     * @return the referrer attribution, or null if the server must decide it
+     */
+    public static MatchResponse parse(String referrer) {
+        if (referrer == null || referrer.isEmpty())
+            return null;
+
+        String utmSource = null;
+        String utmMedium = null;
+        String utmCampaign = null;
+        boolean hasGclid = false;
+
+        int length = referrer.length();
+        int start = 0;
+        while (start < length) {
+            int end = referrer.indexOf('&', start);
+            if (end < 0)
+                end = length;
+
+            int eq = referrer.indexOf('=', start);
+            if (eq > start && eq < end - 1) {
+                int keyLength = eq - start;
+                if (matchesKey(referrer, start, keyLength, UTM_SOURCE))
+                    utmSource = value(referrer, eq + 1, end);
+                else if (matchesKey(referrer, start, keyLength, UTM_MEDIUM))
+                    utmMedium = value(referrer, eq + 1, end);
+                else if (matchesKey(referrer, start, keyLength, UTM_CAMPAIGN))
+                    utmCampaign = value(referrer, eq + 1, end);
+                else if (matchesKey(referrer, start, keyLength, GCLID))
+                    hasGclid = true;
+            }
+            start = end + 1;
+        }
+
+        if (ORGANIC_SOURCE.equals(utmSource) || ORGANIC_MEDIUM.equals(utmMedium))
+            return null;
+        if (hasGclid)
+            return new MatchResponse(
+                utmSource != null ? utmSource : GCLID_SOURCE,
+                utmMedium != null ? utmMedium : GCLID_MEDIUM,
+                utmCampaign);
+        if (utmSource != null && utmMedium != null)
+            return new MatchResponse(utmSource, utmMedium, utmCampaign);
+        return null;
+    }
+
+    private static boolean matchesKey(String referrer, int start, int keyLength, String key) {
+        return keyLength == key.length() && referrer.regionMatches(start, key, 0, keyLength);
+    }
+
+    private static String value(String referrer, int start, int end) {
+        String value = referrer.substring(start, end);
+        if (value.indexOf('%') >= 0 || value.indexOf('+') >= 0) {
+            try {
+                value = URLDecoder.decode(value, "UTF-8");
+            }
+            catch (Exception e) {
+                Log.w(TAG, "Failed to decode referrer value: " + value);
+            }
+        }
+        return value.isEmpty() || NOT_SET.equals(value) ? null : value;
+    }
+}
@@ -0,0 +1,322 @@
+package ai.bridgee.android.sdk;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpeculativeMatchTest {
+
+    private static final String MATCH_ID = "match-1";
+    private static final String ORGANIC_REFERRER = "success:utm_source=google-play&utm_medium=organic";
+    private static final String CONCLUSIVE_REFERRER = "success:utm_source=facebook&utm_medium=paid&utm_campaign=summer";
+
+    private FakeMatchClient matchClient;
+    private FakeReferrerSource referrerSource;
+    private FakeScheduler scheduler;
+    private RecordingCallback callback;
+
+    @Before
+    public void setUp() {
+        matchClient = new FakeMatchClient();
+        referrerSource = new FakeReferrerSource();
+        scheduler = new FakeScheduler();
+        callback = new RecordingCallback();
+
+        new SpeculativeMatch(MATCH_ID, 1000, matchClient, referrerSource, scheduler, callback).start();
+    }
+
+    @Test
+    public void startsMatchAndReferrerInParallel() {
+        assertEquals(MATCH_ID, matchClient.speculativeMatchId);
+        assertEquals(1, matchClient.speculative.size());
+        assertEquals(1, referrerSource.callbacks.size());
+        assertEquals(1000, scheduler.delayMs);
+    }
+
+    @Test
+    public void referrerBeforeSpeculativeResponse() {
+        referrerSource.ok(ORGANIC_REFERRER);
+        assertTrue(scheduler.cancelled);
+        assertTrue(callback.responses.isEmpty());
+        assertTrue(matchClient.completions.isEmpty());
+
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertProvisional(0, "meta");
+        assertEquals(ORGANIC_REFERRER, matchClient.completedReferrer);
+
+        matchClient.completions.get(0).ok(response("google"));
+        assertFinal(1, "google");
+        assertEquals(2, callback.responses.size());
+    }
+
+    @Test
+    public void referrerAfterSpeculativeResponse() {
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertProvisional(0, "meta");
+        assertTrue(matchClient.completions.isEmpty());
+
+        referrerSource.ok(ORGANIC_REFERRER);
+        assertEquals(1, matchClient.completions.size());
+
+        matchClient.completions.get(0).ok(null);
+        assertFinal(1, "meta");
+        assertEquals(2, callback.responses.size());
+    }
+
+    @Test
+    public void conclusiveReferrerIsDeliveredBeforeSpeculativeResponse() {
+        referrerSource.ok(CONCLUSIVE_REFERRER);
+        assertProvisional(0, "facebook");
+
+        // the local attribution was already delivered, so the speculative one is not
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertEquals(1, callback.responses.size());
+
+        matchClient.completions.get(0).ok(response("facebook"));
+        assertFinal(1, "facebook");
+    }
+
+    @Test
+    public void timeoutBeforeSpeculativeResponse() {
+        scheduler.fire();
+        assertTrue(callback.responses.isEmpty());
+
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertFinal(0, "meta");
+        assertEquals(1, callback.responses.size());
+    }
+
+    @Test
+    public void timeoutAfterSpeculativeResponse() {
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertProvisional(0, "meta");
+
+        scheduler.fire();
+        assertFinal(1, "meta");
+        assertEquals(2, callback.responses.size());
+    }
+
+    @Test
+    public void timeoutWhenSpeculativeMatchFailed() {
+        Exception failure = new Exception("offline");
+        matchClient.speculative.get(0).error(failure);
+        assertTrue(callback.errors.isEmpty());
+
+        scheduler.fire();
+        assertEquals(1, callback.errors.size());
+        assertSame(failure, callback.errors.get(0));
+    }
+
+    @Test
+    public void lateReferrerIsStillSentToComplete() {
+        matchClient.speculative.get(0).ok(response("meta"));
+        scheduler.fire();
+        assertEquals(2, callback.responses.size());
+
+        referrerSource.ok(ORGANIC_REFERRER);
+        assertEquals(1, matchClient.completions.size());
+        assertEquals(MATCH_ID, matchClient.completedMatchId);
+        assertEquals(ORGANIC_REFERRER, matchClient.completedReferrer);
+
+        // fire-and-forget: the callback already has the final attribution
+        matchClient.completions.get(0).ok(response("google"));
+        assertEquals(2, callback.responses.size());
+        assertTrue(callback.errors.isEmpty());
+    }
+
+    @Test
+    public void lateReferrerAfterFailedSpeculativeMatchIsIgnored() {
+        matchClient.speculative.get(0).error(new Exception("offline"));
+        scheduler.fire();
+        assertEquals(1, callback.errors.size());
+
+        referrerSource.ok(ORGANIC_REFERRER);
+        assertTrue(matchClient.completions.isEmpty());
+        assertTrue(matchClient.matches.isEmpty());
+    }
+
+    @Test
+    public void speculativeMatchFailsAndReferrerArrives() {
+        matchClient.speculative.get(0).error(new Exception("offline"));
+        referrerSource.ok(ORGANIC_REFERRER);
+
+        // there is no speculative record to complete, so a regular match is sent
+        assertTrue(matchClient.completions.isEmpty());
+        assertEquals(1, matchClient.matches.size());
+        assertEquals(ORGANIC_REFERRER, matchClient.matchedReferrer);
+
+        matchClient.matches.get(0).ok(response("google"));
+        assertFinal(0, "google");
+        assertEquals(1, callback.responses.size());
+        assertTrue(callback.errors.isEmpty());
+    }
+
+    @Test
+    public void speculativeMatchAndRegularMatchFail() {
+        matchClient.speculative.get(0).error(new Exception("offline"));
+        referrerSource.ok(ORGANIC_REFERRER);
+
+        Exception failure = new Exception("still offline");
+        matchClient.matches.get(0).error(failure);
+        assertTrue(callback.responses.isEmpty());
+        assertEquals(1, callback.errors.size());
+        assertSame(failure, callback.errors.get(0));
+    }
+
+    @Test
+    public void completionFailsAfterProvisionalResponse() {
+        matchClient.speculative.get(0).ok(response("meta"));
+        referrerSource.ok(ORGANIC_REFERRER);
+        assertProvisional(0, "meta");
+
+        matchClient.completions.get(0).error(new Exception("offline"));
+        assertFinal(1, "meta");
+        assertEquals(2, callback.responses.size());
+        assertTrue(callback.errors.isEmpty());
+    }
+
+    @Test
+    public void errorReferrerMakesSpeculativeResponseFinal() {
+        referrerSource.ok("error:FEATURE_NOT_SUPPORTED");
+        assertTrue(scheduler.cancelled);
+
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertFinal(0, "meta");
+        assertEquals(1, callback.responses.size());
+        assertTrue(matchClient.completions.isEmpty());
+        assertTrue(matchClient.matches.isEmpty());
+    }
+
+    @Test
+    public void referrerFailureMakesSpeculativeResponseFinal() {
+        matchClient.speculative.get(0).ok(response("meta"));
+        referrerSource.error(new Exception("service unavailable"));
+
+        assertProvisional(0, "meta");
+        assertFinal(1, "meta");
+        assertEquals(2, callback.responses.size());
+        assertTrue(matchClient.completions.isEmpty());
+    }
+
+    @Test
+    public void resolverCallingOkTwiceIsIgnored() {
+        referrerSource.ok(ORGANIC_REFERRER);
+        // e.g. onInstallReferrerServiceDisconnected after the setup finished
+        referrerSource.ok("error:SERVICE_DISCONNECTED");
+
+        matchClient.speculative.get(0).ok(response("meta"));
+        assertProvisional(0, "meta");
+        assertEquals(1, matchClient.completions.size());
+
+        matchClient.completions.get(0).ok(response("google"));
+        assertFinal(1, "google");
+        assertEquals(2, callback.responses.size());
+    }
+
+    private static MatchResponse response(String utmSource) {
+        return new MatchResponse(utmSource, "cpc", "campaign");
+    }
+
+    private void assertProvisional(int index, String utmSource) {
+        MatchResponse response = callback.responses.get(index);
+        assertEquals(utmSource, response.getUtmSource());
+        assertTrue(response.isProvisional());
+    }
+
+    private void assertFinal(int index, String utmSource) {
+        MatchResponse response = callback.responses.get(index);
+        assertEquals(utmSource, response.getUtmSource());
+        assertFalse(response.isProvisional());
+    }
+
+    private static class FakeMatchClient implements SpeculativeMatch.MatchClient {
+        final List<ResponseCallback<MatchResponse>> speculative = new ArrayList<>();
+        final List<ResponseCallback<MatchResponse>> matches = new ArrayList<>();
+        final List<ResponseCallback<MatchResponse>> completions = new ArrayList<>();
+        String speculativeMatchId;
+        String matchedReferrer;
+        String completedMatchId;
+        String completedReferrer;
+
+        @Override
+        public void matchWithoutReferrer(String matchId, ResponseCallback<MatchResponse> callback) {
+            speculativeMatchId = matchId;
+            speculative.add(callback);
+        }
+
+        @Override
+        public void match(String installReferrer, ResponseCallback<MatchResponse> callback) {
+            matchedReferrer = installReferrer;
+            matches.add(callback);
+        }
+
+        @Override
+        public void complete(String matchId, String installReferrer, ResponseCallback<MatchResponse> callback) {
+            completedMatchId = matchId;
+            completedReferrer = installReferrer;
+            completions.add(callback);
+        }
+    }
+
+    private static class FakeReferrerSource implements SpeculativeMatch.ReferrerSource {
+        final List<ResponseCallback<String>> callbacks = new ArrayList<>();
+
+        @Override
+        public void resolve(ResponseCallback<String> callback) {
+            callbacks.add(callback);
+        }
+
+        void ok(String installReferrer) {
+            callbacks.get(0).ok(installReferrer);
+        }
+
+        void error(Exception e) {
+            callbacks.get(0).error(e);
+        }
+    }
+
+    private static class FakeScheduler implements SpeculativeMatch.Scheduler {
+        Runnable task;
+        long delayMs;
+        boolean cancelled = false;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            this.task = task;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (task == this.task)
+                cancelled = true;
+        }
+
+        void fire() {
+            assertFalse("the timeout was cancelled", cancelled);
+            task.run();
+        }
+    }
+
+    private static class RecordingCallback implements ResponseCallback<MatchResponse> {
+        final List<MatchResponse> responses = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+
+        @Override
+        public void ok(MatchResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void error(Exception e) {
+            errors.add(e);
+        }
+    }
+}
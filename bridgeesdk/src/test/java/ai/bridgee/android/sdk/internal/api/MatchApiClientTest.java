@@ -0,0 +1,106 @@
+package ai.bridgee.android.sdk.internal.api;
+
+import ai.bridgee.android.sdk.ResponseCallback;
+import ai.bridgee.android.sdk.internal.model.LocalMatchServer;
+import ai.bridgee.android.sdk.internal.model.MatchRequestCodec;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MatchApiClientTest {
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private LocalMatchServer server;
+    private MatchApiClient client;
+
+    @Before
+    public void setUp() {
+        MatchApiClient.binaryFormatRejected = false;
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null)
+            client.shutdown();
+        if (server != null)
+            server.close();
+        MatchApiClient.binaryFormatRejected = false;
+    }
+
+    @Test
+    public void binaryIsSentWhenServerAcceptsIt() throws Exception {
+        start(true, true);
+
+        match();
+        assertEquals(1, server.requestCount());
+        assertEquals(MatchRequestCodec.CONTENT_TYPE, server.lastContentType());
+    }
+
+    @Test
+    public void jsonIsSentByDefault() throws Exception {
+        start(true, false);
+
+        match();
+        assertEquals(1, server.requestCount());
+        assertEquals(JSON_CONTENT_TYPE, server.lastContentType());
+    }
+
+    @Test
+    public void binaryRejectedWith415IsResentAsJson() throws Exception {
+        start(false, true);
+
+        match();
+        assertEquals(2, server.requestCount());
+        assertEquals(JSON_CONTENT_TYPE, server.lastContentType());
+    }
+
+    @Test
+    public void binaryIsSkippedAfterBeingRejected() throws Exception {
+        start(false, true);
+        match();
+        assertEquals(2, server.requestCount());
+
+        match();
+        assertEquals(3, server.requestCount());
+        assertEquals(JSON_CONTENT_TYPE, server.lastContentType());
+    }
+
+    private void start(boolean acceptBinary, boolean binaryFormat) throws Exception {
+        server = new LocalMatchServer(acceptBinary);
+        client = new MatchApiClient(null, server.baseUrl(), "tenant", "key", binaryFormat);
+    }
+
+    /**
+     * Sends a match and waits for the answer, failing if the client reports an error.
+     */
+    private void match() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        Exception[] error = new Exception[1];
+
+        client.match(null, new ResponseCallback<JSONObject>() {
+            @Override
+            public void ok(JSONObject response) {
+                done.countDown();
+            }
+
+            @Override
+            public void error(Exception e) {
+                error[0] = e;
+                done.countDown();
+            }
+        });
+
+        assertTrue("match did not finish in time", done.await(5, TimeUnit.SECONDS));
+        if (error[0] != null)
+            throw error[0];
+    }
+}
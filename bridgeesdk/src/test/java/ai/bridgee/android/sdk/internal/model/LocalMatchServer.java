@@ -0,0 +1,118 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal /match endpoint for tests. It decodes the body with the same {@link MatchRequestCodec}
+ * used by the SDK when the content type is binary, or with Gson otherwise, and answers with a fixed
+ * JSON attribution. It can also reject the binary format with 415, like a server that does not support it.
+ */
+public class LocalMatchServer implements AutoCloseable {
+
+    private static final String RESPONSE = "{\"utm_source\":\"facebook\",\"utm_medium\":\"paid\",\"utm_campaign\":\"summer\"}";
+
+    private final HttpServer server;
+    private final Gson gson = new Gson();
+    private final boolean acceptBinary;
+    private volatile List<MetadataItem> lastMetadata;
+    private volatile String lastContentType;
+    private volatile int lastBodySize;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    public LocalMatchServer(boolean acceptBinary) throws IOException {
+        this.acceptBinary = acceptBinary;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/match", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return the base address, ending with a slash, like the one used by the SDK
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public String url() {
+        return baseUrl() + "match";
+    }
+
+    public List<MetadataItem> lastMetadata() {
+        return lastMetadata;
+    }
+
+    public String lastContentType() {
+        return lastContentType;
+    }
+
+    public int lastBodySize() {
+        return lastBodySize;
+    }
+
+    /**
+     * @return how many requests were received, including the rejected ones
+     */
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        byte[] body = readAll(exchange.getRequestBody());
+        requestCount.incrementAndGet();
+        lastContentType = contentType;
+        lastBodySize = body.length;
+
+        int status = 200;
+        byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (contentType != null && contentType.startsWith(MatchRequestCodec.CONTENT_TYPE)) {
+                if (!acceptBinary) {
+                    status = 415;
+                    response = new byte[0];
+                }
+                else {
+                    lastMetadata = MatchRequestCodec.decode(body);
+                }
+            }
+            else {
+                lastMetadata = gson.fromJson(new String(body, StandardCharsets.UTF_8), MatchRequest.class).getMetadata();
+            }
+        }
+        catch (IOException e) {
+            status = 400;
+            response = e.getMessage().getBytes(StandardCharsets.UTF_8);
+        }
+
+        exchange.sendResponseHeaders(status, response.length == 0 ? -1 : response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
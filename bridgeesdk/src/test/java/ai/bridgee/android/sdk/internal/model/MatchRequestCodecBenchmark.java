@@ -0,0 +1,61 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compares the size and the encode/decode time of {@link MatchRequestCodec} against Gson for a typical
+ * first_open payload. Timings depend on the machine, so this is not part of the unit tests: run the
+ * main method from the IDE, with the unit test classpath of the bridgeesdk module.
+ */
+public class MatchRequestCodecBenchmark {
+
+    private static final int ITERATIONS = 20000;
+
+    public static void main(String[] args) throws Exception {
+        Gson gson = new Gson();
+        List<MetadataItem> metadata = MatchRequestCodecTest.typicalFirstOpen();
+        MatchRequest request = new MatchRequest(metadata);
+        byte[] binary = MatchRequestCodec.encode(metadata);
+        String json = gson.toJson(request);
+        long sink = 0;
+
+        // warm up both paths before measuring
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += MatchRequestCodec.encode(metadata).length + MatchRequestCodec.decode(binary).size();
+            sink += gson.toJson(request).length() + gson.fromJson(json, MatchRequest.class).getMetadata().size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += MatchRequestCodec.encode(metadata).length;
+        }
+        long binaryEncode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += MatchRequestCodec.decode(binary).size();
+        }
+        long binaryDecode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += gson.toJson(request).length();
+        }
+        long gsonEncode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += gson.fromJson(json, MatchRequest.class).getMetadata().size();
+        }
+        long gsonDecode = System.nanoTime() - start;
+
+        System.out.println("match payload size: binary=" + binary.length + " bytes, gson=" + json.getBytes(StandardCharsets.UTF_8).length + " bytes");
+        System.out.println("match encode ns/op: binary=" + binaryEncode / ITERATIONS + ", gson=" + gsonEncode / ITERATIONS);
+        System.out.println("match decode ns/op: binary=" + binaryDecode / ITERATIONS + ", gson=" + gsonDecode / ITERATIONS);
+        // keeps the JIT from dropping the measured loops
+        System.out.println("checksum: " + sink);
+    }
+}
@@ -0,0 +1,185 @@
+package ai.bridgee.android.sdk.internal.model;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MatchRequestCodecTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void roundTripKeepsAllItemsInOrder() throws Exception {
+        List<MetadataItem> metadata = typicalFirstOpen();
+
+        assertSameMetadata(metadata, MatchRequestCodec.decode(MatchRequestCodec.encode(metadata)));
+    }
+
+    @Test
+    public void roundTripKeepsNullAndEmptyValuesApart() throws Exception {
+        List<MetadataItem> metadata = Arrays.asList(
+            new MetadataItem("email", null),
+            new MetadataItem("phone", ""),
+            new MetadataItem("custom", null),
+            new MetadataItem("", "empty key"));
+
+        List<MetadataItem> decoded = MatchRequestCodec.decode(MatchRequestCodec.encode(metadata));
+
+        assertNull(decoded.get(0).getValue());
+        assertEquals("", decoded.get(1).getValue());
+        assertNull(decoded.get(2).getValue());
+        assertEquals("", decoded.get(3).getKey());
+    }
+
+    @Test
+    public void roundTripHandlesUnicodeAndLongValues() throws Exception {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longValue.append('x');
+        }
+        List<MetadataItem> metadata = Arrays.asList(
+            new MetadataItem("name", "Jo\u00e3o Silva \u2713"),
+            new MetadataItem("install_referrer", longValue.toString()));
+
+        assertSameMetadata(metadata, MatchRequestCodec.decode(MatchRequestCodec.encode(metadata)));
+    }
+
+    @Test
+    public void emptyMetadataRoundTrips() throws Exception {
+        assertTrue(MatchRequestCodec.decode(MatchRequestCodec.encode(new ArrayList<>())).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyPayloadIsRejected() throws Exception {
+        MatchRequestCodec.decode(new byte[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownVersionIsRejected() throws Exception {
+        byte[] data = MatchRequestCodec.encode(typicalFirstOpen());
+        data[0] = (byte) (MatchRequestCodec.VERSION + 1);
+        MatchRequestCodec.decode(data);
+    }
+
+    @Test
+    public void truncatedPayloadIsRejected() {
+        byte[] data = MatchRequestCodec.encode(typicalFirstOpen());
+        for (int length = 1; length < data.length; length++) {
+            try {
+                MatchRequestCodec.decode(Arrays.copyOf(data, length));
+                throw new AssertionError("Truncated payload of " + length + " bytes was accepted");
+            }
+            catch (IOException expected) {
+                // ok
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void trailingBytesAreRejected() throws Exception {
+        byte[] data = MatchRequestCodec.encode(typicalFirstOpen());
+        MatchRequestCodec.decode(Arrays.copyOf(data, data.length + 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownKeyReferenceIsRejected() throws Exception {
+        // version, 1 item, keyRef 100, null value
+        MatchRequestCodec.decode(new byte[] {1, 1, 100, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedVarintIsRejected() throws Exception {
+        MatchRequestCodec.decode(new byte[] {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedFifthVarintByteIsRejected() throws Exception {
+        // the fifth byte sets bits above the int range, which would be silently dropped
+        MatchRequestCodec.decode(new byte[] {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10});
+    }
+
+    @Test(expected = IOException.class)
+    public void hugeItemCountIsRejected() throws Exception {
+        // claims Integer.MAX_VALUE items but has none
+        MatchRequestCodec.decode(new byte[] {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+    }
+
+    @Test
+    public void binaryIsSmallerThanGson() {
+        List<MetadataItem> metadata = typicalFirstOpen();
+        int binarySize = MatchRequestCodec.encode(metadata).length;
+        int jsonSize = gson.toJson(new MatchRequest(metadata)).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue("binary payload should be at most half of the JSON one", binarySize * 2 <= jsonSize);
+    }
+
+    @Test
+    public void localServerDecodesBothFormats() throws Exception {
+        List<MetadataItem> metadata = typicalFirstOpen();
+        try (LocalMatchServer server = new LocalMatchServer(true)) {
+            assertEquals(200, post(server.url(), MatchRequestCodec.CONTENT_TYPE, MatchRequestCodec.encode(metadata)));
+            assertSameMetadata(metadata, server.lastMetadata());
+            int binarySize = server.lastBodySize();
+
+            byte[] json = gson.toJson(new MatchRequest(metadata)).getBytes(StandardCharsets.UTF_8);
+            assertEquals(200, post(server.url(), "application/json; charset=utf-8", json));
+            assertSameMetadata(metadata, server.lastMetadata());
+            assertTrue(binarySize < server.lastBodySize());
+        }
+    }
+
+    @Test
+    public void localServerWithoutBinarySupportAnswers415() throws Exception {
+        try (LocalMatchServer server = new LocalMatchServer(false)) {
+            assertEquals(415, post(server.url(), MatchRequestCodec.CONTENT_TYPE, MatchRequestCodec.encode(typicalFirstOpen())));
+        }
+    }
+
+    private static int post(String url, String contentType, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setDoOutput(true);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body);
+            }
+            return connection.getResponseCode();
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    static List<MetadataItem> typicalFirstOpen() {
+        List<MetadataItem> metadata = new ArrayList<>();
+        metadata.add(new MetadataItem("event_name", "first_open"));
+        metadata.add(new MetadataItem("install_referrer", "success:utm_source=google-play&utm_medium=organic"));
+        metadata.add(new MetadataItem("email", "usuario@email.com"));
+        metadata.add(new MetadataItem("phone", "+5511999999999"));
+        metadata.add(new MetadataItem("name", "Jo\u00e3o Silva"));
+        metadata.add(new MetadataItem("app_version", "1.2.3"));
+        return metadata;
+    }
+
+    private static void assertSameMetadata(List<MetadataItem> expected, List<MetadataItem> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package ai.bridgee.android.sdk.internal.queue;
+
+import android.content.ComponentCallbacks2;
+
+import ai.bridgee.android.sdk.internal.api.ConversionApiException;
+import ai.bridgee.android.sdk.internal.model.ConversionBatchRequest;
+import ai.bridgee.android.sdk.internal.model.ConversionEvent;
+import ai.bridgee.android.sdk.internal.model.MetadataItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConversionEventQueueTest {
+
+    private File file;
+    private ConversionEventStore store;
+    private FakeUploader uploader;
+    private ScheduledExecutorService executorService;
+    private long now = 1000000;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("conversions", ".log");
+        file.delete();
+        store = new ConversionEventStore(file);
+        uploader = new FakeUploader();
+        executorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void enqueueBelowThresholdOnlyStoresEvents() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        for (int i = 0; i < ConversionEventQueue.FLUSH_THRESHOLD - 1; i++) {
+            queue.enqueue(event("key-" + i));
+        }
+        drain(queue);
+
+        assertEquals(0, uploader.calls);
+        assertEquals(ConversionEventQueue.FLUSH_THRESHOLD - 1, queue.pendingCount());
+        assertEquals(ConversionEventQueue.FLUSH_THRESHOLD - 1, store.load().size());
+    }
+
+    @Test
+    public void reachingThresholdUploadsBatch() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        for (int i = 0; i < ConversionEventQueue.FLUSH_THRESHOLD; i++) {
+            queue.enqueue(event("key-" + i));
+        }
+        drain(queue);
+
+        assertEquals(1, uploader.calls);
+        assertEquals(ConversionEventQueue.FLUSH_THRESHOLD, uploader.uploaded.size());
+        assertEquals(0, queue.pendingCount());
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void duplicatedKeysAreIgnored() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        queue.enqueue(event("order-1"));
+        queue.enqueue(event("order-1"));
+        queue.enqueue(event("order-2"));
+        drain(queue);
+
+        assertEquals(2, queue.pendingCount());
+
+        queue.flush();
+        drain(queue);
+        assertEquals(2, uploader.uploaded.size());
+    }
+
+    @Test
+    public void flushUploadsInBatchesOfMaxSize() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new ConversionApiException(503, "unavailable"));
+        int total = ConversionEventQueue.MAX_BATCH_SIZE + 10;
+        for (int i = 0; i < total; i++) {
+            queue.enqueue(event("key-" + i));
+        }
+        queue.flush();
+        drain(queue);
+
+        assertEquals(total, uploader.uploaded.size());
+        assertEquals(ConversionEventQueue.MAX_BATCH_SIZE, uploader.batchSizes.get(0).intValue());
+        assertEquals(10, uploader.batchSizes.get(1).intValue());
+    }
+
+    @Test
+    public void rejectedBatchIsDiscardedAndDoesNotBlockLaterEvents() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new ConversionApiException(400, "bad request"));
+        for (int i = 0; i <= ConversionEventQueue.FLUSH_THRESHOLD; i++) {
+            queue.enqueue(event("key-" + i));
+        }
+        drain(queue);
+
+        assertEquals(1, queue.pendingCount());
+        assertFalse(queue.isBackingOff());
+
+        queue.flush();
+        drain(queue);
+        assertEquals(Collections.singletonList("key-" + ConversionEventQueue.FLUSH_THRESHOLD), uploader.uploaded);
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void authErrorsKeepEventsAndBackOff() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new ConversionApiException(401, "unauthorized"));
+        queue.enqueue(event("key-1"));
+        queue.flush();
+        drain(queue);
+
+        assertEquals(1, queue.pendingCount());
+        assertTrue(queue.isBackingOff());
+
+        uploader.failures.add(new ConversionApiException(403, "forbidden"));
+        queue.flush();
+        drain(queue);
+        assertEquals(1, queue.pendingCount());
+        assertEquals(1, store.load().size());
+    }
+
+    @Test
+    public void temporaryErrorBacksOffAndKeepsEvents() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new ConversionApiException(503, "unavailable"));
+        for (int i = 0; i < ConversionEventQueue.FLUSH_THRESHOLD + 5; i++) {
+            queue.enqueue(event("key-" + i));
+        }
+        drain(queue);
+
+        // the events after the threshold must not trigger new uploads while backing off
+        assertEquals(1, uploader.calls);
+        assertTrue(queue.isBackingOff());
+        assertEquals(ConversionEventQueue.FLUSH_THRESHOLD + 5, queue.pendingCount());
+        assertEquals(ConversionEventQueue.FLUSH_THRESHOLD + 5, store.load().size());
+    }
+
+    @Test
+    public void backoffGrowsWithConsecutiveFailures() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new Exception("without internet connection"));
+        uploader.failures.add(new Exception("without internet connection"));
+        queue.enqueue(event("key"));
+        queue.flush();
+        drain(queue);
+
+        now += ConversionEventQueue.FLUSH_INTERVAL_MS;
+        assertFalse(queue.isBackingOff());
+
+        queue.flush();
+        drain(queue);
+        now += ConversionEventQueue.FLUSH_INTERVAL_MS;
+        assertTrue(queue.isBackingOff());
+        now += ConversionEventQueue.FLUSH_INTERVAL_MS;
+        assertFalse(queue.isBackingOff());
+    }
+
+    @Test
+    public void appGoingToBackgroundFlushesPendingEvents() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        queue.enqueue(event("key-1"));
+        drain(queue);
+
+        queue.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        drain(queue);
+        assertEquals(0, uploader.calls);
+
+        queue.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        drain(queue);
+        assertEquals(1, uploader.calls);
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    public void appGoingToBackgroundDoesNotFlushWhileBackingOff() throws Exception {
+        ConversionEventQueue queue = newQueue();
+        uploader.failures.add(new ConversionApiException(503, "unavailable"));
+        queue.enqueue(event("key-1"));
+        queue.flush();
+        drain(queue);
+        assertEquals(1, uploader.calls);
+
+        queue.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        drain(queue);
+        assertEquals(1, uploader.calls);
+
+        now += ConversionEventQueue.FLUSH_INTERVAL_MS;
+        queue.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        drain(queue);
+        assertEquals(2, uploader.calls);
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    public void pendingEventsAreFlushedAfterTheInterval() throws Exception {
+        ConversionEventQueue queue = newQueue(50);
+        queue.enqueue(event("key-1"));
+        queue.enqueue(event("key-2"));
+        drain(queue);
+        assertEquals(0, uploader.calls);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            drain(queue);
+        }
+
+        // both events go in the single batch scheduled by the first one
+        assertEquals(1, uploader.calls);
+        assertEquals(2, uploader.uploaded.size());
+    }
+
+    @Test
+    public void pendingEventsAreLoadedFromStore() throws Exception {
+        store.append(event("key-1"));
+        store.append(event("key-2"));
+
+        ConversionEventQueue queue = newQueue();
+        drain(queue);
+
+        assertEquals(2, queue.pendingCount());
+    }
+
+    private ConversionEventQueue newQueue() {
+        return newQueue(ConversionEventQueue.FLUSH_INTERVAL_MS);
+    }
+
+    private ConversionEventQueue newQueue(long flushIntervalMs) {
+        return new ConversionEventQueue(store, uploader, executorService, flushIntervalMs) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    private static void drain(ConversionEventQueue queue) throws Exception {
+        queue.executorService.submit(() -> { }).get();
+    }
+
+    private static ConversionEvent event(String key) {
+        List<MetadataItem> metadata = new ArrayList<>();
+        metadata.add(new MetadataItem("value", "9.90"));
+        return new ConversionEvent("purchase", key, 0, metadata);
+    }
+
+    private static class FakeUploader implements ConversionUploader {
+        final LinkedList<Exception> failures = new LinkedList<>();
+        final List<String> uploaded = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        int calls = 0;
+
+        @Override
+        public void send(ConversionBatchRequest batch) throws Exception {
+            calls++;
+            if (!failures.isEmpty())
+                throw failures.removeFirst();
+
+            batchSizes.add(batch.getEvents().size());
+            for (ConversionEvent event : batch.getEvents()) {
+                uploaded.add(event.getIdempotencyKey());
+            }
+        }
+    }
+}
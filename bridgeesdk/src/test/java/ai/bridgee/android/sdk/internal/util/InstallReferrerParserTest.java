@@ -0,0 +1,82 @@
+package ai.bridgee.android.sdk.internal.util;
+
+import ai.bridgee.android.sdk.MatchResponse;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class InstallReferrerParserTest {
+
+    @Test
+    public void utmSourceAndMediumAreConclusive() {
+        MatchResponse response = InstallReferrerParser.parse("utm_source=facebook&utm_medium=paid&utm_campaign=summer");
+
+        assertEquals("facebook", response.getUtmSource());
+        assertEquals("paid", response.getUtmMedium());
+        assertEquals("summer", response.getUtmCampaign());
+    }
+
+    @Test
+    public void campaignIsOptional() {
+        MatchResponse response = InstallReferrerParser.parse("utm_medium=email&utm_source=newsletter");
+
+        assertEquals("newsletter", response.getUtmSource());
+        assertEquals("email", response.getUtmMedium());
+        assertNull(response.getUtmCampaign());
+    }
+
+    @Test
+    public void encodedValuesAreDecoded() {
+        MatchResponse response = InstallReferrerParser.parse("utm_source=fb&utm_medium=paid%20social&utm_campaign=black+friday");
+
+        assertEquals("paid social", response.getUtmMedium());
+        assertEquals("black friday", response.getUtmCampaign());
+    }
+
+    @Test
+    public void organicInstallsAreNotConclusive() {
+        assertNull(InstallReferrerParser.parse("utm_source=google-play&utm_medium=organic"));
+        assertNull(InstallReferrerParser.parse("utm_source=google-play&utm_medium=cpc"));
+        assertNull(InstallReferrerParser.parse("utm_source=facebook&utm_medium=organic"));
+    }
+
+    @Test
+    public void notSetValuesAreIgnored() {
+        assertNull(InstallReferrerParser.parse("utm_source=(not%20set)&utm_medium=(not%20set)"));
+        assertNull(InstallReferrerParser.parse("utm_source=facebook&utm_medium=(not set)"));
+    }
+
+    @Test
+    public void gclidDefaultsToGoogleAds() {
+        MatchResponse response = InstallReferrerParser.parse("gclid=abc123&utm_campaign=brand");
+
+        assertEquals("google", response.getUtmSource());
+        assertEquals("cpc", response.getUtmMedium());
+        assertEquals("brand", response.getUtmCampaign());
+    }
+
+    @Test
+    public void gclidKeepsExplicitUtmValues() {
+        MatchResponse response = InstallReferrerParser.parse("gclid=x&utm_source=bing");
+
+        assertEquals("bing", response.getUtmSource());
+        assertEquals("cpc", response.getUtmMedium());
+    }
+
+    @Test
+    public void incompleteReferrersAreNotConclusive() {
+        assertNull(InstallReferrerParser.parse(null));
+        assertNull(InstallReferrerParser.parse(""));
+        assertNull(InstallReferrerParser.parse("utm_source=facebook"));
+        assertNull(InstallReferrerParser.parse("utm_source=&utm_medium=paid"));
+        assertNull(InstallReferrerParser.parse("gclid=&utm_source"));
+        assertNull(InstallReferrerParser.parse("a=b&=c&utm_source"));
+    }
+
+    @Test
+    public void keysMustMatchExactly() {
+        assertNull(InstallReferrerParser.parse("xutm_source=facebook&utm_mediums=paid"));
+    }
+}